@@ -0,0 +1,60 @@
+package it.okkam.validation;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Classifier of values that may contain either natural or legal person fiscal codes.
+ */
+@UtilityClass
+public class FiscalCodeClassifier {
+
+  /**
+   * Classify and validate the passed value in a single scan, without allocating objects. Leading
+   * and trailing white spaces are ignored and lower case letters are accepted. The town of birth
+   * of natural persons is not checked against the ISTAT table.
+   *
+   * @param value the value to classify
+   * @return the type of the fiscal code, INVALID if the value is not a valid fiscal code
+   */
+  public static FiscalCodeType classify(CharSequence value) {
+    if (value == null) {
+      return FiscalCodeType.INVALID;
+    }
+    int start = 0;
+    int end = value.length();
+    while (start < end && Character.isWhitespace(value.charAt(start))) {
+      start++;
+    }
+    while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+      end--;
+    }
+    switch (end - start) {
+      case FiscalCodeValidator.CODE_LENGTH:
+        return classifyPersonal(value, start);
+      case LegalEntityCodeValidator.CODE_LENGTH:
+        return LegalEntityCodeValidator.isValid(value, start) ? FiscalCodeType.LEGAL_ENTITY
+            : FiscalCodeType.INVALID;
+      default:
+        return FiscalCodeType.INVALID;
+    }
+  }
+
+  private static FiscalCodeType classifyPersonal(CharSequence value, int offset) {
+    int sum = 0;
+    for (int i = 0; i < FiscalCodeValidator.CONTROL_POSITION; i++) {
+      final char character = FiscalCodeValidator.toUpperCase(value.charAt(offset + i));
+      if (!FiscalCodeValidator.isValidChar(i, character)) {
+        return FiscalCodeType.INVALID;
+      }
+      sum += FiscalCodeValidator.getControlValue(i, character);
+    }
+    final char control = FiscalCodeValidator
+        .toUpperCase(value.charAt(offset + FiscalCodeValidator.CONTROL_POSITION));
+    if (control != FiscalCodeValidator.getControlChar(sum)
+        || !FiscalCodeValidator.isValidOmocodiaAndDay(value, offset)) {
+      return FiscalCodeType.INVALID;
+    }
+    return FiscalCodeValidator.isOmocodic(value, offset) ? FiscalCodeType.OMOCODIC_PERSONAL
+        : FiscalCodeType.PERSONAL;
+  }
+}
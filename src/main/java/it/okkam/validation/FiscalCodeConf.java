@@ -1,17 +1,18 @@
 package it.okkam.validation;
 
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import lombok.Getter;
-import lombok.Setter;
 
 /**
- * Configuration class.
+ * Configuration class. Instances are immutable (the comuni map and its lists cannot be modified,
+ * the fields are final and the class cannot be extended), so a single configuration can be safely
+ * shared by many threads, even when published without synchronization.
  */
 @Getter
-@Setter
-public class FiscalCodeConf implements Serializable {
+public final class FiscalCodeConf implements Serializable {
 
   private static final long serialVersionUID = 1L;
   private final Map<String, List<String>> comuniMap;
@@ -23,14 +24,10 @@ public class FiscalCodeConf implements Serializable {
   private final int dayStart;
   private final int dayEnd;
 
-  protected FiscalCodeConf() {
-    this(null, null, 8, 10, 3, 5, 0, 2);
-  }
-
   /**
    * Config.
    *
-   * @param comuniMap comuniMap
+   * @param comuniMap comuniMap (copied)
    * @param maleValue male value
    * @param yearStart year start index
    * @param yearEnd year end index
@@ -41,7 +38,7 @@ public class FiscalCodeConf implements Serializable {
    */
   public FiscalCodeConf(Map<String, List<String>> comuniMap, String maleValue, int yearStart,
       int yearEnd, int monthStart, int monthEnd, int dayStart, int dayEnd) {
-    this.comuniMap = comuniMap;
+    this.comuniMap = immutableCopy(comuniMap);
     this.maleValue = maleValue;
     this.yearStart = yearStart;
     this.yearEnd = yearEnd;
@@ -51,4 +48,134 @@ public class FiscalCodeConf implements Serializable {
     this.dayEnd = dayEnd;
   }
 
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static Map<String, List<String>> immutableCopy(Map<String, List<String>> comuniMap) {
+    if (comuniMap == null) {
+      return Map.of();
+    }
+    // most of the names (accented, truncated, etc..) share the same list of codes
+    final Map<List<String>, List<String>> lists = new HashMap<>();
+    final Map<String, List<String>> ret = new HashMap<>(comuniMap.size() * 4 / 3 + 1);
+    for (Map.Entry<String, List<String>> entry : comuniMap.entrySet()) {
+      ret.put(entry.getKey(), lists.computeIfAbsent(entry.getValue(), List::copyOf));
+    }
+    return Map.copyOf(ret);
+  }
+
+  private Object readResolve() {
+    // never trust the deserialized collections to be immutable
+    return new FiscalCodeConf(comuniMap, maleValue, yearStart, yearEnd, monthStart, monthEnd,
+        dayStart, dayEnd);
+  }
+
+  /**
+   * Builder of FiscalCodeConf. By default the male value is "M" and the birth dates are formatted
+   * as dd/MM/yyyy.
+   */
+  public static final class Builder {
+
+    private Map<String, List<String>> comuniMap;
+    private String maleValue = "M";
+    private int yearStart = 8;
+    private int yearEnd = 10;
+    private int monthStart = 3;
+    private int monthEnd = 5;
+    private int dayStart = 0;
+    private int dayEnd = 2;
+
+    private Builder() {
+    }
+
+    /**
+     * Set the comuni map (copied when the FiscalCodeConf is built).
+     *
+     * @param comuniMap the TOWN => Belfiore codes mappings
+     * @return this builder
+     */
+    public Builder comuniMap(Map<String, List<String>> comuniMap) {
+      this.comuniMap = comuniMap;
+      return this;
+    }
+
+    /**
+     * Set the comuni map from the ISTAT table.
+     *
+     * @param codiciIstatStr the string content of the TSV containing CODICE-ISTAT => TOWN mappings
+     * @param maxComuneNameLength the max length of the name of a comune (0 to disable generation
+     *        of truncated version of the name)
+     * @return this builder
+     */
+    public Builder comuni(String codiciIstatStr, int maxComuneNameLength) {
+      this.comuniMap = FiscalCodeValidator.getComuniMap(codiciIstatStr, maxComuneNameLength);
+      return this;
+    }
+
+    /**
+     * Set the value of the gender of male persons.
+     *
+     * @param maleValue male value
+     * @return this builder
+     */
+    public Builder maleValue(String maleValue) {
+      this.maleValue = maleValue;
+      return this;
+    }
+
+    /**
+     * Set the position of the year in the birth date.
+     *
+     * @param yearStart year start index
+     * @param yearEnd year end index
+     * @return this builder
+     */
+    public Builder year(int yearStart, int yearEnd) {
+      this.yearStart = yearStart;
+      this.yearEnd = yearEnd;
+      return this;
+    }
+
+    /**
+     * Set the position of the month in the birth date.
+     *
+     * @param monthStart month start index
+     * @param monthEnd month end index
+     * @return this builder
+     */
+    public Builder month(int monthStart, int monthEnd) {
+      this.monthStart = monthStart;
+      this.monthEnd = monthEnd;
+      return this;
+    }
+
+    /**
+     * Set the position of the day in the birth date.
+     *
+     * @param dayStart day start index
+     * @param dayEnd day end index
+     * @return this builder
+     */
+    public Builder day(int dayStart, int dayEnd) {
+      this.dayStart = dayStart;
+      this.dayEnd = dayEnd;
+      return this;
+    }
+
+    /**
+     * Build the FiscalCodeConf.
+     *
+     * @return the FiscalCodeConf
+     * @throws IllegalStateException if the comuni map has not been set
+     */
+    public FiscalCodeConf build() {
+      if (comuniMap == null) {
+        throw new IllegalStateException("comuniMap not set");
+      }
+      return new FiscalCodeConf(comuniMap, maleValue, yearStart, yearEnd, monthStart, monthEnd,
+          dayStart, dayEnd);
+    }
+  }
+
 }
@@ -0,0 +1,50 @@
+package it.okkam.validation;
+
+import java.io.Serializable;
+import lombok.Getter;
+
+/**
+ * A candidate correction of a fiscal code, see {@link FiscalCodeCorrector}.
+ */
+@Getter
+public class FiscalCodeCorrection implements Serializable {
+
+  /**
+   * The kind of correction.
+   */
+  public enum Type {
+    /** The code is already valid. */
+    NONE,
+    /** The char at the position has been replaced. */
+    SUBSTITUTION,
+    /** The chars at the position and at the next one have been swapped. */
+    TRANSPOSITION
+  }
+
+  private static final long serialVersionUID = 1L;
+  private final String code;
+  private final Type type;
+  private final int position;
+  private final int score;
+
+  /**
+   * Correction.
+   *
+   * @param code the corrected fiscal code
+   * @param type the type of the correction
+   * @param position the (0-based) position of the correction (-1 for NONE)
+   * @param score the score of the correction (the higher the more likely)
+   */
+  public FiscalCodeCorrection(String code, Type type, int position, int score) {
+    this.code = code;
+    this.type = type;
+    this.position = position;
+    this.score = score;
+  }
+
+  @Override
+  public String toString() {
+    return code + " (" + type + "@" + position + ", score " + score + ")";
+  }
+
+}
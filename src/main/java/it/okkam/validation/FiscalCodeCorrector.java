@@ -0,0 +1,214 @@
+package it.okkam.validation;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Corrector of fiscal codes containing a single mistyped (or badly recognized by OCR) char or two
+ * swapped adjacent chars.
+ *
+ * <p>Substitutions are not brute-forced: for every position, the control character determines the
+ * control value the replacement must have, so only the few chars with that value are tried. Each
+ * candidate must then respect the layout of the code (letters, digits or omocodic letters, month
+ * letters, day of the month) and contain an existing town code of the FiscalCodeConf.
+ */
+public class FiscalCodeCorrector {
+
+  private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+  // pairs of chars commonly confused by OCR or when typing
+  private static final String[] CONFUSIONS = new String[] { //
+      "0O", "0D", "0Q", "1I", "1L", "2Z", "4A", "5S", "6G", "7T", "8B", "UV" };
+  private static final boolean[][] confusionMatrix = new boolean['Z' + 1]['Z' + 1];
+  // chars by parity of the position and control value
+  private static final char[][][] charsByControlValue = new char[2][26][];
+
+  static {
+    for (String confusion : CONFUSIONS) {
+      confusionMatrix[confusion.charAt(0)][confusion.charAt(1)] = true;
+      confusionMatrix[confusion.charAt(1)][confusion.charAt(0)] = true;
+    }
+    for (int parity = 0; parity < 2; parity++) {
+      for (int value = 0; value < 26; value++) {
+        final StringBuilder chars = new StringBuilder();
+        for (char c : ALPHABET.toCharArray()) {
+          if (FiscalCodeValidator.getControlValue(parity, c) == value) {
+            chars.append(c);
+          }
+        }
+        charsByControlValue[parity][value] = chars.toString().toCharArray();
+      }
+    }
+  }
+
+  private final BitSet townCodes = new BitSet(26 * 1000);
+
+  /**
+   * Corrector.
+   *
+   * @param conf the FiscalCodeConf providing the valid town codes
+   */
+  public FiscalCodeCorrector(FiscalCodeConf conf) {
+    for (List<String> codes : conf.getComuniMap().values()) {
+      for (String code : codes) {
+        final int townCode = getTownCode(code, 0);
+        if (townCode >= 0) {
+          townCodes.set(townCode);
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the valid fiscal codes that differ from the passed one by a single substitution or by the
+   * transposition of two adjacent chars.
+   *
+   * @param code the fiscal code to correct
+   * @return the candidate corrections, sorted by decreasing score; a single NONE correction if the
+   *         code is already valid, an empty list if no correction is found
+   */
+  public List<FiscalCodeCorrection> correct(String code) {
+    if (code == null) {
+      return Collections.emptyList();
+    }
+    final char[] chars = code.trim().toUpperCase().toCharArray();
+    if (chars.length != FiscalCodeValidator.CODE_LENGTH) {
+      return Collections.emptyList();
+    }
+    final CharBuffer view = CharBuffer.wrap(chars);
+    final int[] values = new int[FiscalCodeValidator.CONTROL_POSITION];
+    int sum = 0;
+    int unsupported = 0;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = FiscalCodeValidator.getControlValue(i, chars[i]);
+      if (values[i] < 0) {
+        unsupported++;
+      } else {
+        sum += values[i];
+      }
+    }
+    final List<FiscalCodeCorrection> ret = new ArrayList<>();
+    if (unsupported == 0 && isValid(chars, view)) {
+      ret.add(new FiscalCodeCorrection(new String(chars), FiscalCodeCorrection.Type.NONE, -1,
+          0));
+      return ret;
+    }
+
+    final char control = chars[FiscalCodeValidator.CONTROL_POSITION];
+    if (control >= 'A' && control <= 'Z' && unsupported <= 1) {
+      for (int pos = 0; pos < values.length; pos++) {
+        if (unsupported == 1 && values[pos] >= 0) {
+          // the only substitution must replace the unsupported char
+          continue;
+        }
+        final int otherValues = values[pos] < 0 ? sum : sum - values[pos];
+        final int requiredValue = Math.floorMod(control - 'A' - otherValues, 26);
+        final char original = chars[pos];
+        for (char replacement : charsByControlValue[pos % 2][requiredValue]) {
+          if (replacement == original || !FiscalCodeValidator.isValidChar(pos, replacement)) {
+            continue;
+          }
+          chars[pos] = replacement;
+          if (isValid(chars, view)) {
+            ret.add(new FiscalCodeCorrection(new String(chars),
+                FiscalCodeCorrection.Type.SUBSTITUTION, pos,
+                getSubstitutionScore(pos, original, replacement)));
+          }
+        }
+        chars[pos] = original;
+      }
+    }
+    if (unsupported == 0) {
+      final char expectedControl = FiscalCodeValidator.getControlChar(sum);
+      if (expectedControl != control) {
+        chars[FiscalCodeValidator.CONTROL_POSITION] = expectedControl;
+        if (isValid(chars, view)) {
+          ret.add(new FiscalCodeCorrection(new String(chars),
+              FiscalCodeCorrection.Type.SUBSTITUTION, FiscalCodeValidator.CONTROL_POSITION,
+              getSubstitutionScore(FiscalCodeValidator.CONTROL_POSITION, control,
+                  expectedControl)));
+        }
+        chars[FiscalCodeValidator.CONTROL_POSITION] = control;
+      }
+    }
+
+    for (int pos = 0; pos < FiscalCodeValidator.CONTROL_POSITION; pos++) {
+      final char first = chars[pos];
+      final char second = chars[pos + 1];
+      if (first == second || !FiscalCodeValidator.isValidChar(pos, second)
+          || !FiscalCodeValidator.isValidChar(pos + 1, first)) {
+        continue;
+      }
+      chars[pos] = second;
+      chars[pos + 1] = first;
+      if (isValid(chars, view)) {
+        int score = 2;
+        if (!FiscalCodeValidator.isValidChar(pos, first)
+            || !FiscalCodeValidator.isValidChar(pos + 1, second)) {
+          score += 2;
+        }
+        ret.add(new FiscalCodeCorrection(new String(chars),
+            FiscalCodeCorrection.Type.TRANSPOSITION, pos, score));
+      }
+      chars[pos] = first;
+      chars[pos + 1] = second;
+    }
+
+    ret.sort(Comparator.comparingInt(FiscalCodeCorrection::getScore).reversed()
+        .thenComparingInt(FiscalCodeCorrection::getPosition));
+    return ret;
+  }
+
+  private boolean isValid(char[] chars, CharBuffer view) {
+    if (!FiscalCodeValidator.isWellFormed(view, 0)) {
+      return false;
+    }
+    final int townCode = getTownCode(view, 11);
+    if (townCode < 0 || !townCodes.get(townCode)) {
+      return false;
+    }
+    int sum = 0;
+    for (int i = 0; i < FiscalCodeValidator.CONTROL_POSITION; i++) {
+      sum += FiscalCodeValidator.getControlValue(i, chars[i]);
+    }
+    return FiscalCodeValidator.getControlChar(sum) == chars[FiscalCodeValidator.CONTROL_POSITION];
+  }
+
+  private static int getTownCode(CharSequence code, int offset) {
+    if (code.length() < offset + 4) {
+      return -1;
+    }
+    final char letter = code.charAt(offset);
+    if (letter < 'A' || letter > 'Z') {
+      return -1;
+    }
+    int number = 0;
+    for (int i = 1; i < 4; i++) {
+      final int digit = FiscalCodeValidator.getDigit(code.charAt(offset + i));
+      if (digit < 0) {
+        return -1;
+      }
+      number = number * 10 + digit;
+    }
+    return (letter - 'A') * 1000 + number;
+  }
+
+  private static int getSubstitutionScore(int position, char original, char replacement) {
+    int score;
+    if (original <= 'Z' && confusionMatrix[original][replacement]) {
+      score = 3;
+    } else if (Character.isDigit(original) && !Character.isDigit(replacement)) {
+      // an omocodic letter in place of a digit is unlikely
+      score = 0;
+    } else {
+      score = 1;
+    }
+    if (!FiscalCodeValidator.isValidChar(position, original)) {
+      score += 2;
+    }
+    return score;
+  }
+}
@@ -0,0 +1,443 @@
+package it.okkam.validation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Record-linkage join between a dataset of persons and a dataset of fiscal codes.
+ *
+ * <p>Codes are indexed by their 11 chars prefix (surname, name, birth date and gender, without
+ * omocodia) and every person is probed against the index using
+ * {@link FiscalCodeValidator#calculatePrefix}, so the town of birth and the control character are
+ * checked only for prefix hits. When the codes do not fit in memory, both datasets are
+ * hash-partitioned by prefix into temporary files and joined one partition at a time; partitions
+ * with more than maxInMemoryCodes codes are partitioned again (up to 4 levels).
+ */
+public class FiscalCodeJoiner {
+
+  public static final int DEFAULT_MAX_IN_MEMORY_CODES = 1_000_000;
+  public static final int DEFAULT_NUM_PARTITIONS = 64;
+
+  private static final int PREFIX_LENGTH = 11;
+  private static final int MAX_PARTITION_LEVELS = 4;
+  private static final String ROOT_PARTITION = "p";
+  private static final String CODES_SUFFIX = ".codes";
+  private static final String PERSONS_SUFFIX = ".persons";
+
+  private final FiscalCodeConf conf;
+  private final int maxInMemoryCodes;
+  private final int numPartitions;
+  private final File spillDir;
+
+  public FiscalCodeJoiner(FiscalCodeConf conf) {
+    this(conf, DEFAULT_MAX_IN_MEMORY_CODES, DEFAULT_NUM_PARTITIONS, null);
+  }
+
+  /**
+   * Joiner.
+   *
+   * @param conf the FiscalCodeConf
+   * @param maxInMemoryCodes the max number of codes to index in memory before spilling to disk
+   * @param numPartitions the number of partitions to use when spilling to disk
+   * @param spillDir the directory of the spill files (null to use java.io.tmpdir)
+   */
+  public FiscalCodeJoiner(FiscalCodeConf conf, int maxInMemoryCodes, int numPartitions,
+      File spillDir) {
+    if (maxInMemoryCodes <= 0 || numPartitions <= 0) {
+      throw new IllegalArgumentException(
+          "maxInMemoryCodes and numPartitions must be positive");
+    }
+    this.conf = conf;
+    this.maxInMemoryCodes = maxInMemoryCodes;
+    this.numPartitions = numPartitions;
+    this.spillDir = spillDir == null ? new File(System.getProperty("java.io.tmpdir")) : spillDir;
+  }
+
+  /**
+   * Join the persons with the fiscal codes. Every person produces exactly one MATCHED, AMBIGUOUS or
+   * UNMATCHED_PERSON result (AMBIGUOUS when distinct codes match the person, duplicated codes are
+   * considered once). Every code not matched by any person produces an UNMATCHED_CODE result and
+   * every code matched by more than one person produces a SHARED_CODE result, emitted after the
+   * results of those persons (that still report the code as MATCHED or AMBIGUOUS). Results are not
+   * emitted in input order.
+   *
+   * @param persons the persons to join
+   * @param codes the fiscal codes to join
+   * @param consumer the consumer of the join results
+   * @throws IOException if the spill files cannot be written or read
+   */
+  public void join(Iterator<FiscalCodePerson> persons, Iterator<String> codes,
+      Consumer<FiscalCodeMatch> consumer) throws IOException {
+    Map<String, List<CodeEntry>> index = new HashMap<>();
+    int indexed = 0;
+    while (codes.hasNext()) {
+      if (indexed == maxInMemoryCodes) {
+        spillAndJoin(index, persons, codes, consumer);
+        return;
+      }
+      final String code = normalizeCode(codes.next());
+      if (code == null) {
+        continue;
+      }
+      final String key = getCodeKey(code);
+      if (key == null) {
+        emitUnmatchedCode(code, consumer);
+        continue;
+      }
+      if (addToIndex(index, key, code)) {
+        indexed++;
+      }
+    }
+    while (persons.hasNext()) {
+      final FiscalCodePerson person = persons.next();
+      probe(index, person, getPersonKey(person), consumer);
+    }
+    emitCodeResults(index, consumer);
+  }
+
+  private void spillAndJoin(Map<String, List<CodeEntry>> index, Iterator<FiscalCodePerson> persons,
+      Iterator<String> codes, Consumer<FiscalCodeMatch> consumer) throws IOException {
+    final File dir = Files.createTempDirectory(spillDir.toPath(), "fiscal-code-join").toFile();
+    try {
+      final int[] codeCounts = new int[numPartitions];
+      final DataOutputStream[] codeOuts = openPartitions(dir, ROOT_PARTITION, CODES_SUFFIX);
+      try {
+        for (Map.Entry<String, List<CodeEntry>> entry : index.entrySet()) {
+          final int partition = getPartition(entry.getKey(), 0);
+          for (CodeEntry codeEntry : entry.getValue()) {
+            codeOuts[partition].writeUTF(codeEntry.code);
+            codeCounts[partition]++;
+          }
+        }
+        index.clear();
+        while (codes.hasNext()) {
+          final String code = normalizeCode(codes.next());
+          if (code == null) {
+            continue;
+          }
+          final String key = getCodeKey(code);
+          if (key == null) {
+            emitUnmatchedCode(code, consumer);
+            continue;
+          }
+          final int partition = getPartition(key, 0);
+          codeOuts[partition].writeUTF(code);
+          codeCounts[partition]++;
+        }
+      } finally {
+        closeAll(codeOuts);
+      }
+
+      final int[] personCounts = new int[numPartitions];
+      final DataOutputStream[] personOuts = openPartitions(dir, ROOT_PARTITION, PERSONS_SUFFIX);
+      try {
+        while (persons.hasNext()) {
+          final FiscalCodePerson person = persons.next();
+          final String prefix = getPersonKey(person);
+          if (prefix == null) {
+            emitUnmatchedPerson(person, consumer);
+            continue;
+          }
+          final int partition = getPartition(prefix, 0);
+          personOuts[partition].writeUTF(prefix);
+          writePerson(personOuts[partition], person);
+          personCounts[partition]++;
+        }
+      } finally {
+        closeAll(personOuts);
+      }
+
+      for (int partition = 0; partition < numPartitions; partition++) {
+        joinPartition(dir, ROOT_PARTITION + "-" + partition, codeCounts[partition],
+            personCounts[partition], 1, consumer);
+      }
+    } finally {
+      deleteDir(dir);
+    }
+  }
+
+  private void joinPartition(File dir, String name, int codeCount, int personCount, int level,
+      Consumer<FiscalCodeMatch> consumer) throws IOException {
+    if (codeCount > maxInMemoryCodes && level < MAX_PARTITION_LEVELS) {
+      // too many codes (e.g. skewed prefixes): split the partition with another hash function
+      final int[] codeCounts = new int[numPartitions];
+      final DataOutputStream[] codeOuts = openPartitions(dir, name, CODES_SUFFIX);
+      try (DataInputStream in = openPartition(dir, name, CODES_SUFFIX)) {
+        for (int i = 0; i < codeCount; i++) {
+          final String code = in.readUTF();
+          final int partition = getPartition(getCodeKey(code), level);
+          codeOuts[partition].writeUTF(code);
+          codeCounts[partition]++;
+        }
+      } finally {
+        closeAll(codeOuts);
+      }
+      final int[] personCounts = new int[numPartitions];
+      final DataOutputStream[] personOuts = openPartitions(dir, name, PERSONS_SUFFIX);
+      try (DataInputStream in = openPartition(dir, name, PERSONS_SUFFIX)) {
+        for (int i = 0; i < personCount; i++) {
+          final String prefix = in.readUTF();
+          final int partition = getPartition(prefix, level);
+          personOuts[partition].writeUTF(prefix);
+          writePerson(personOuts[partition], readPerson(in));
+          personCounts[partition]++;
+        }
+      } finally {
+        closeAll(personOuts);
+      }
+      deletePartition(dir, name);
+      for (int partition = 0; partition < numPartitions; partition++) {
+        joinPartition(dir, name + "-" + partition, codeCounts[partition],
+            personCounts[partition], level + 1, consumer);
+      }
+      return;
+    }
+
+    // a single prefix with more than maxInMemoryCodes codes is loaded anyway
+    final Map<String, List<CodeEntry>> index = new HashMap<>();
+    try (DataInputStream in = openPartition(dir, name, CODES_SUFFIX)) {
+      for (int i = 0; i < codeCount; i++) {
+        final String code = in.readUTF();
+        addToIndex(index, getCodeKey(code), code);
+      }
+    }
+    try (DataInputStream in = openPartition(dir, name, PERSONS_SUFFIX)) {
+      for (int i = 0; i < personCount; i++) {
+        final String prefix = in.readUTF();
+        probe(index, readPerson(in), prefix, consumer);
+      }
+    }
+    deletePartition(dir, name);
+    emitCodeResults(index, consumer);
+  }
+
+  private void probe(Map<String, List<CodeEntry>> index, FiscalCodePerson person, String prefix,
+      Consumer<FiscalCodeMatch> consumer) {
+    final List<CodeEntry> candidates = prefix == null ? null : index.get(prefix);
+    if (candidates == null || StringUtils.isBlank(person.getTownOfBirth())) {
+      emitUnmatchedPerson(person, consumer);
+      return;
+    }
+    // resolve the town only for prefix hits
+    final List<String> townCodes;
+    try {
+      townCodes = FiscalCodeValidator.getTownCodes(conf, person.getTownOfBirth());
+    } catch (IllegalArgumentException ex) {
+      emitUnmatchedPerson(person, consumer);
+      return;
+    }
+    List<String> matches = null;
+    for (CodeEntry candidate : candidates) {
+      if (!townCodes.contains(candidate.getTownCode()) || !candidate.isControlCharValid()) {
+        continue;
+      }
+      candidate.matchingPersons++;
+      if (matches == null) {
+        matches = new ArrayList<>(1);
+      }
+      matches.add(candidate.code);
+    }
+    if (matches == null) {
+      emitUnmatchedPerson(person, consumer);
+    } else {
+      final FiscalCodeMatch.Type type =
+          matches.size() == 1 ? FiscalCodeMatch.Type.MATCHED : FiscalCodeMatch.Type.AMBIGUOUS;
+      consumer.accept(new FiscalCodeMatch(type, person, matches));
+    }
+  }
+
+  private String getPersonKey(FiscalCodePerson person) {
+    try {
+      return FiscalCodeValidator.calculatePrefix(conf, person.getSurname(), person.getName(),
+          person.getBirthDate(), person.getGender());
+    } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+      // malformed birth date
+      return null;
+    }
+  }
+
+  private static String normalizeCode(String code) {
+    if (code == null) {
+      return null;
+    }
+    final String normalized = code.trim().toUpperCase();
+    return normalized.isEmpty() ? null : normalized;
+  }
+
+  private static String getCodeKey(String code) {
+    if (code.length() != FiscalCodeValidator.CODE_LENGTH) {
+      return null;
+    }
+    return FiscalCodeValidator.removeOmocodia(code.substring(0, PREFIX_LENGTH));
+  }
+
+  private int getPartition(String key, int level) {
+    // a different hash function for every level, so that a partition can be split again
+    int hash = key.hashCode() ^ (level * 0x9E3779B9);
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    return Math.floorMod(hash, numPartitions);
+  }
+
+  private static boolean addToIndex(Map<String, List<CodeEntry>> index, String key,
+      String code) {
+    final List<CodeEntry> entries = index.computeIfAbsent(key, k -> new ArrayList<>(1));
+    for (CodeEntry entry : entries) {
+      if (entry.code.equals(code)) {
+        // duplicated code
+        return false;
+      }
+    }
+    entries.add(new CodeEntry(code));
+    return true;
+  }
+
+  private static void emitUnmatchedPerson(FiscalCodePerson person,
+      Consumer<FiscalCodeMatch> consumer) {
+    consumer.accept(new FiscalCodeMatch(FiscalCodeMatch.Type.UNMATCHED_PERSON, person,
+        Collections.emptyList()));
+  }
+
+  private static void emitUnmatchedCode(String code, Consumer<FiscalCodeMatch> consumer) {
+    consumer.accept(new FiscalCodeMatch(FiscalCodeMatch.Type.UNMATCHED_CODE, null,
+        Collections.singletonList(code)));
+  }
+
+  private static void emitCodeResults(Map<String, List<CodeEntry>> index,
+      Consumer<FiscalCodeMatch> consumer) {
+    for (List<CodeEntry> entries : index.values()) {
+      for (CodeEntry entry : entries) {
+        if (entry.matchingPersons == 0) {
+          emitUnmatchedCode(entry.code, consumer);
+        } else if (entry.matchingPersons > 1) {
+          consumer.accept(new FiscalCodeMatch(FiscalCodeMatch.Type.SHARED_CODE, null,
+              Collections.singletonList(entry.code)));
+        }
+      }
+    }
+  }
+
+  private DataOutputStream[] openPartitions(File dir, String name, String suffix)
+      throws IOException {
+    final DataOutputStream[] outs = new DataOutputStream[numPartitions];
+    try {
+      for (int i = 0; i < numPartitions; i++) {
+        outs[i] = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(new File(dir, name + "-" + i + suffix))));
+      }
+    } catch (IOException ex) {
+      closeAll(outs);
+      throw ex;
+    }
+    return outs;
+  }
+
+  private static DataInputStream openPartition(File dir, String name, String suffix)
+      throws IOException {
+    return new DataInputStream(
+        new BufferedInputStream(new FileInputStream(new File(dir, name + suffix))));
+  }
+
+  private static void deletePartition(File dir, String name) {
+    new File(dir, name + CODES_SUFFIX).delete();
+    new File(dir, name + PERSONS_SUFFIX).delete();
+  }
+
+  private static void closeAll(DataOutputStream[] outs) throws IOException {
+    IOException error = null;
+    for (DataOutputStream out : outs) {
+      if (out == null) {
+        continue;
+      }
+      try {
+        out.close();
+      } catch (IOException ex) {
+        error = ex;
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  private static void deleteDir(File dir) {
+    final File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  private static void writePerson(DataOutputStream out, FiscalCodePerson person)
+      throws IOException {
+    writeNullable(out, person.getId());
+    writeNullable(out, person.getSurname());
+    writeNullable(out, person.getName());
+    writeNullable(out, person.getBirthDate());
+    writeNullable(out, person.getTownOfBirth());
+    writeNullable(out, person.getGender());
+  }
+
+  private static FiscalCodePerson readPerson(DataInputStream in) throws IOException {
+    return new FiscalCodePerson(readNullable(in), readNullable(in), readNullable(in),
+        readNullable(in), readNullable(in), readNullable(in));
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static final class CodeEntry {
+    private final String code;
+    private Boolean controlCharValid;
+    private int matchingPersons;
+
+    private CodeEntry(String code) {
+      this.code = code;
+    }
+
+    private String getTownCode() {
+      return FiscalCodeValidator.removeOmocodia(code).substring(PREFIX_LENGTH,
+          FiscalCodeValidator.CONTROL_POSITION);
+    }
+
+    private boolean isControlCharValid() {
+      if (controlCharValid == null) {
+        boolean valid;
+        try {
+          valid = FiscalCodeValidator.calculateControlChar(code)
+              .charAt(0) == code.charAt(FiscalCodeValidator.CONTROL_POSITION);
+        } catch (IllegalArgumentException ex) {
+          valid = false;
+        }
+        controlCharValid = valid;
+      }
+      return controlCharValid;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package it.okkam.validation;
+
+import java.io.Serializable;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * A result of the {@link FiscalCodeJoiner}.
+ */
+@Getter
+public class FiscalCodeMatch implements Serializable {
+
+  /**
+   * The outcome of the join.
+   */
+  public enum Type {
+    /** The person matches exactly one fiscal code. */
+    MATCHED,
+    /** The person matches more than one fiscal code. */
+    AMBIGUOUS,
+    /** The person does not match any fiscal code. */
+    UNMATCHED_PERSON,
+    /** The fiscal code is not matched by any person. */
+    UNMATCHED_CODE,
+    /** The fiscal code is matched by more than one person. */
+    SHARED_CODE
+  }
+
+  private static final long serialVersionUID = 1L;
+  private final Type type;
+  private final FiscalCodePerson person;
+  private final List<String> codes;
+
+  /**
+   * Match.
+   *
+   * @param type the type of the match
+   * @param person the person (null for UNMATCHED_CODE and SHARED_CODE)
+   * @param codes the matched fiscal codes (empty for UNMATCHED_PERSON)
+   */
+  public FiscalCodeMatch(Type type, FiscalCodePerson person, List<String> codes) {
+    this.type = type;
+    this.person = person;
+    this.codes = codes;
+  }
+
+}
@@ -0,0 +1,40 @@
+package it.okkam.validation;
+
+import java.io.Serializable;
+import lombok.Getter;
+
+/**
+ * The person credentials used to compute a fiscal code.
+ */
+@Getter
+public class FiscalCodePerson implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private final String id;
+  private final String surname;
+  private final String name;
+  private final String birthDate;
+  private final String townOfBirth;
+  private final String gender;
+
+  /**
+   * Person.
+   *
+   * @param id the caller-defined identifier of the person (e.g. the registry record id)
+   * @param surname person surname
+   * @param name person name
+   * @param birthDate person birth date (in the format of the FiscalCodeConf)
+   * @param townOfBirth person town of birth
+   * @param gender person gender
+   */
+  public FiscalCodePerson(String id, String surname, String name, String birthDate,
+      String townOfBirth, String gender) {
+    this.id = id;
+    this.surname = surname;
+    this.name = name;
+    this.birthDate = birthDate;
+    this.townOfBirth = townOfBirth;
+    this.gender = gender;
+  }
+
+}
@@ -0,0 +1,15 @@
+package it.okkam.validation;
+
+/**
+ * The kind of a fiscal code, see {@link FiscalCodeClassifier}.
+ */
+public enum FiscalCodeType {
+  /** 16 chars code of a natural person. */
+  PERSONAL,
+  /** 16 chars code of a natural person with omocodic letters in place of digits. */
+  OMOCODIC_PERSONAL,
+  /** 11 digits code of a legal person (i.e. partita IVA). */
+  LEGAL_ENTITY,
+  /** Not a valid fiscal code. */
+  INVALID
+}
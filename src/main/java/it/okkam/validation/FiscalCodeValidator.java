@@ -1,6 +1,7 @@
 package it.okkam.validation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,10 +33,21 @@ public class FiscalCodeValidator {
       "O'", "O'", "O", "O", //
       "U'", "U'", "U", "U" };
 
+  private static final int[] OMOCODIC_POSITIONS = new int[] { 6, 7, 9, 10, 12, 13, 14 };
+  private static final String OMOCODIC_LETTERS = "LMNPQRSTUV";
+  private static final String MONTH_LETTERS = "ABCDEHLMPRST";
+  private static final int[] MONTH_DAYS = new int[] { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30,
+      31 };
+  static final int CODE_LENGTH = 16;
+  static final int CONTROL_POSITION = 15;
+
   private static final Map<Integer, String> monthValues;
   private static final HashMap<String, Integer> oddSumValues;
   private static final HashMap<String, Integer> evenSumValues;
   private static final HashMap<Integer, String> controlCharValues;
+  // control values indexed by char, -1 for unsupported chars
+  private static final int[] oddControlValues = new int['Z' + 1];
+  private static final int[] evenControlValues = new int['Z' + 1];
 
   static {
     monthValues = new HashMap<>();
@@ -155,6 +167,15 @@ public class FiscalCodeValidator {
     controlCharValues.put(23, "X");
     controlCharValues.put(24, "Y");
     controlCharValues.put(25, "Z");
+
+    Arrays.fill(oddControlValues, -1);
+    for (Map.Entry<String, Integer> entry : oddSumValues.entrySet()) {
+      oddControlValues[entry.getKey().charAt(0)] = entry.getValue();
+    }
+    Arrays.fill(evenControlValues, -1);
+    for (Map.Entry<String, Integer> entry : evenSumValues.entrySet()) {
+      evenControlValues[entry.getKey().charAt(0)] = entry.getValue();
+    }
   }
 
   /**
@@ -174,6 +195,36 @@ public class FiscalCodeValidator {
     if (!paramsOk) {
       return null;
     }
+    final String prefix = calculatePrefix(conf, surname, name, birthDate, gender);
+
+    /* Birthplace */
+    List<String> townCodes = getTownCodes(conf, townOfBirth);
+    /* Character of control */
+    String[] ret = new String[townCodes.size()];
+    for (int i = 0; i < ret.length; i++) {
+      ret[i] = prefix + townCodes.get(i);
+      ret[i] += calculateControlChar(ret[i]);
+    }
+    return ret;
+  }
+
+  /**
+   * Calculate the first 11 chars of the fiscal code (surname, name, birth date and gender), i.e.
+   * the part that does not depend on the town of birth.
+   *
+   * @param conf the FiscalCodeConf
+   * @param surname person surname
+   * @param name person name
+   * @param birthDate person birth date (as dd/MM/yyyy)
+   * @param gender person gender
+   * @return the 11 chars prefix, null if the prefix cannot be computed
+   */
+  public static String calculatePrefix(FiscalCodeConf conf, String surname, String name,
+      String birthDate, String gender) {
+    final boolean paramsOk = checkParamsNotEmpty(surname, name, birthDate, gender);
+    if (!paramsOk) {
+      return null;
+    }
     surname = FiscalCodeNormalizer.normalizeName(surname, true);
     name = FiscalCodeNormalizer.normalizeName(name, true);
     StringBuilder result = new StringBuilder();
@@ -270,19 +321,48 @@ public class FiscalCodeValidator {
       day += 40;
       result.append(Integer.toString(day));
     }
+    return result.toString();
+  }
 
-    /* Birthplace */
+  /**
+   * Get the codes (a.k.a. codici catastali) of the passed town of birth.
+   *
+   * @param conf the FiscalCodeConf
+   * @param townOfBirth person town of birth
+   * @return the list of codes of the town
+   * @throws IllegalArgumentException if the town is unknown
+   */
+  public static List<String> getTownCodes(FiscalCodeConf conf, String townOfBirth) {
     List<String> townCodes = conf.getComuniMap().get(townOfBirth.toUpperCase());
     if (townCodes == null) {
       throw new IllegalArgumentException("Birth town " + townOfBirth + UNSUPPORTED);
     }
-    /* Character of control */
-    String[] ret = new String[townCodes.size()];
-    for (int i = 0; i < ret.length; i++) {
-      ret[i] = result + townCodes.get(i);
-      ret[i] += calculateControlChar(ret[i]);
+    return townCodes;
+  }
+
+  /**
+   * Replace the letters used to resolve omocodia with the original digits (i.e. "L" is 0, "M" is 1,
+   * etc..).
+   *
+   * @param code the fiscal code (or one of its prefixes)
+   * @return the code with digits in all numeric positions
+   */
+  public static String removeOmocodia(String code) {
+    char[] chars = null;
+    for (int pos : OMOCODIC_POSITIONS) {
+      if (pos >= code.length()) {
+        break;
+      }
+      final char character = code.charAt(pos);
+      final int digit = getDigit(character);
+      if (digit >= 0 && character > '9') {
+        if (chars == null) {
+          chars = code.toCharArray();
+        }
+        chars[pos] = (char) ('0' + digit);
+      }
     }
-    return ret;
+    return chars == null ? code : new String(chars);
   }
 
   private static boolean checkParamsNotEmpty(String... params) {
@@ -311,7 +391,7 @@ public class FiscalCodeValidator {
     return false;
   }
 
-  private static String calculateControlChar(String result) {
+  static String calculateControlChar(String result) {
     int evenSum = 0;
     for (int i = 1; i <= 13; i += 2) {
       Integer valueToSum = evenSumValues.get(String.valueOf(result.charAt(i)));
@@ -336,6 +416,132 @@ public class FiscalCodeValidator {
     return controlChar;
   }
 
+  /**
+   * Get the value of a char of the fiscal code in the computation of the control character.
+   *
+   * @param position the (0-based) position of the char in the fiscal code
+   * @param character the char
+   * @return the value of the char, -1 if the char is not an upper case letter or a digit
+   */
+  static int getControlValue(int position, char character) {
+    if (character > 'Z') {
+      return -1;
+    }
+    // odd chars are the ones at even 0-based positions
+    return position % 2 == 0 ? oddControlValues[character] : evenControlValues[character];
+  }
+
+  /**
+   * Check whether a char is allowed at the given position of a fiscal code.
+   *
+   * @param position the (0-based) position of the char in the fiscal code
+   * @param character the char
+   * @return true if the char is allowed at that position
+   */
+  static boolean isValidChar(int position, char character) {
+    switch (position) {
+      case 6:
+      case 7:
+      case 9:
+      case 10:
+      case 12:
+      case 13:
+      case 14:
+        return getDigit(character) >= 0;
+      case 8:
+        return MONTH_LETTERS.indexOf(character) >= 0;
+      default:
+        return character >= 'A' && character <= 'Z';
+    }
+  }
+
+  /**
+   * Get the digit of a numeric char of the fiscal code, taking omocodia into account.
+   *
+   * @param character the char
+   * @return the digit, -1 if the char is neither a digit nor an omocodic letter
+   */
+  static int getDigit(char character) {
+    if (character >= '0' && character <= '9') {
+      return character - '0';
+    }
+    return OMOCODIC_LETTERS.indexOf(character);
+  }
+
+  /**
+   * Check the chars, the birth day and the omocodia of a fiscal code (the town and the control
+   * character are not checked). Lower case letters are accepted.
+   *
+   * @param code the chars of the code
+   * @param offset the offset of the code in the chars
+   * @return true if all the chars are valid
+   */
+  static boolean isWellFormed(CharSequence code, int offset) {
+    for (int i = 0; i < CODE_LENGTH; i++) {
+      if (!isValidChar(i, toUpperCase(code.charAt(offset + i)))) {
+        return false;
+      }
+    }
+    return isValidOmocodiaAndDay(code, offset);
+  }
+
+  /**
+   * Check the birth day and the omocodia of a fiscal code whose chars have been already checked
+   * with {@link #isValidChar(int, char)}.
+   *
+   * @param code the chars of the code
+   * @param offset the offset of the code in the chars
+   * @return true if the birth day and the omocodia are valid
+   */
+  static boolean isValidOmocodiaAndDay(CharSequence code, int offset) {
+    // omocodic letters replace the digits starting from the rightmost one
+    boolean digitFound = false;
+    for (int i = OMOCODIC_POSITIONS.length - 1; i >= 0; i--) {
+      final char character = code.charAt(offset + OMOCODIC_POSITIONS[i]);
+      final boolean isDigit = character >= '0' && character <= '9';
+      if (digitFound && !isDigit) {
+        return false;
+      }
+      digitFound |= isDigit;
+    }
+    int day = getDigit(toUpperCase(code.charAt(offset + 9))) * 10
+        + getDigit(toUpperCase(code.charAt(offset + 10)));
+    if (day > 40) {
+      day -= 40;
+    }
+    final int month = MONTH_LETTERS.indexOf(toUpperCase(code.charAt(offset + 8)));
+    return day >= 1 && day <= MONTH_DAYS[month];
+  }
+
+  /**
+   * Check whether the fiscal code contains omocodic letters, assuming it has been already checked
+   * with {@link #isValidOmocodiaAndDay(CharSequence, int)}.
+   *
+   * @param code the chars of the code
+   * @param offset the offset of the code in the chars
+   * @return true if the code is omocodic
+   */
+  static boolean isOmocodic(CharSequence code, int offset) {
+    // the rightmost numeric char is the first to be replaced
+    final char last = code.charAt(offset + OMOCODIC_POSITIONS[OMOCODIC_POSITIONS.length - 1]);
+    return last < '0' || last > '9';
+  }
+
+  static char toUpperCase(char character) {
+    return character >= 'a' && character <= 'z' ? (char) (character - 'a' + 'A') : character;
+  }
+
+  /**
+   * Get the control character of a fiscal code from the sum of the control values of its first 15
+   * chars.
+   *
+   * @param controlSum the sum of the control values
+   * @return the control character
+   */
+  static char getControlChar(int controlSum) {
+    return (char) ('A' + controlSum % 26);
+  }
+
   /**
    * Initialize the FiscalCodeConf.
    *
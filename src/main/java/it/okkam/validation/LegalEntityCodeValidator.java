@@ -0,0 +1,93 @@
+package it.okkam.validation;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Validator of the 11 digits fiscal codes of legal persons (i.e. the partita IVA).
+ *
+ * <p>The first 7 digits are the serial number of the entity, the next 3 digits the code of the
+ * provincial office that assigned it and the last one a Luhn check digit.
+ */
+@UtilityClass
+public class LegalEntityCodeValidator {
+
+  static final int CODE_LENGTH = 11;
+  private static final int OFFICE_START = 7;
+
+  /**
+   * Check whether the passed value is a valid legal person fiscal code.
+   *
+   * @param code the code to check
+   * @return true if the code is made of 11 digits with a valid office code and check digit
+   */
+  public static boolean isValid(CharSequence code) {
+    return code != null && code.length() == CODE_LENGTH && isValid(code, 0);
+  }
+
+  /**
+   * Check whether the 11 chars starting at offset are a valid legal person fiscal code.
+   *
+   * @param code the chars of the code
+   * @param offset the offset of the code in the chars
+   * @return true if the code is valid
+   */
+  static boolean isValid(CharSequence code, int offset) {
+    int serial = 0;
+    int office = 0;
+    int sum = 0;
+    for (int i = 0; i < CODE_LENGTH - 1; i++) {
+      final int digit = getDigit(code.charAt(offset + i));
+      if (digit < 0) {
+        return false;
+      }
+      if (i < OFFICE_START) {
+        serial = serial * 10 + digit;
+      } else {
+        office = office * 10 + digit;
+      }
+      sum += getLuhnValue(i, digit);
+    }
+    final int checkDigit = getDigit(code.charAt(offset + CODE_LENGTH - 1));
+    return serial > 0 && isValidOffice(office) && checkDigit == (10 - sum % 10) % 10;
+  }
+
+  /**
+   * Calculate the check digit of a legal person fiscal code.
+   *
+   * @param code the code (at least its first 10 digits)
+   * @return the check digit
+   * @throws IllegalArgumentException if the code is null, shorter than 10 chars or not numeric
+   */
+  public static char calculateCheckDigit(CharSequence code) {
+    if (code == null || code.length() < CODE_LENGTH - 1) {
+      throw new IllegalArgumentException("Code " + code + " unsupported value");
+    }
+    int sum = 0;
+    for (int i = 0; i < CODE_LENGTH - 1; i++) {
+      final int digit = getDigit(code.charAt(i));
+      if (digit < 0) {
+        throw new IllegalArgumentException("Digit " + code.charAt(i) + " unsupported value");
+      }
+      sum += getLuhnValue(i, digit);
+    }
+    return (char) ('0' + (10 - sum % 10) % 10);
+  }
+
+  private static boolean isValidOffice(int office) {
+    // provincial offices, plus the codes of the central offices
+    return (office >= 1 && office <= 100) || office == 120 || office == 121 || office == 888
+        || office == 999;
+  }
+
+  private static int getLuhnValue(int position, int digit) {
+    if (position % 2 == 0) {
+      return digit;
+    }
+    final int doubled = digit * 2;
+    return doubled > 9 ? doubled - 9 : doubled;
+  }
+
+  private static int getDigit(char character) {
+    return character >= '0' && character <= '9' ? character - '0' : -1;
+  }
+}
@@ -0,0 +1,68 @@
+package it.okkam.validation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FiscalCodeClassifierTest {
+
+  @Test
+  public void testPersonal() {
+    Assert.assertEquals(FiscalCodeType.PERSONAL,
+        FiscalCodeClassifier.classify("FOXDRA26C24H872Y"));
+    Assert.assertEquals(FiscalCodeType.PERSONAL,
+        FiscalCodeClassifier.classify(" dmclri73m70h501n "));
+    Assert.assertEquals(FiscalCodeType.OMOCODIC_PERSONAL,
+        FiscalCodeClassifier.classify("FOXDRA26C24H87NN"));
+  }
+
+  @Test
+  public void testInvalidPersonal() {
+    // wrong control char
+    Assert.assertEquals(FiscalCodeType.INVALID,
+        FiscalCodeClassifier.classify("FOXDRA26C24H872Z"));
+    // wrong month
+    Assert.assertEquals(FiscalCodeType.INVALID,
+        FiscalCodeClassifier.classify("FOXDRA26F24H872G"));
+    // 30th of February
+    Assert.assertEquals(FiscalCodeType.INVALID,
+        FiscalCodeClassifier.classify("FOXDRA26B30H872M"));
+    // omocodic letter not in the rightmost position
+    Assert.assertEquals(FiscalCodeType.INVALID,
+        FiscalCodeClassifier.classify("FOXDRA26C24H8T2K"));
+    Assert.assertEquals(FiscalCodeType.INVALID, FiscalCodeClassifier.classify(null));
+    Assert.assertEquals(FiscalCodeType.INVALID, FiscalCodeClassifier.classify(""));
+    Assert.assertEquals(FiscalCodeType.INVALID, FiscalCodeClassifier.classify("FOXDRA26C24"));
+  }
+
+  @Test
+  public void testLegalEntity() {
+    Assert.assertEquals(FiscalCodeType.LEGAL_ENTITY,
+        FiscalCodeClassifier.classify("06363391001"));
+    Assert.assertEquals(FiscalCodeType.LEGAL_ENTITY,
+        FiscalCodeClassifier.classify("80209930587"));
+    Assert.assertTrue(LegalEntityCodeValidator.isValid("00488410010"));
+    Assert.assertEquals('1', LegalEntityCodeValidator.calculateCheckDigit("0636339100"));
+  }
+
+  @Test
+  public void testInvalidLegalEntity() {
+    // wrong check digit
+    Assert.assertFalse(LegalEntityCodeValidator.isValid("06363391002"));
+    // wrong office code
+    Assert.assertFalse(LegalEntityCodeValidator.isValid("06363391506"));
+    Assert.assertFalse(LegalEntityCodeValidator.isValid("0636339100A"));
+    Assert.assertFalse(LegalEntityCodeValidator.isValid(null));
+    Assert.assertEquals(FiscalCodeType.INVALID, FiscalCodeClassifier.classify("06363391002"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCheckDigitOfShortCode() {
+    LegalEntityCodeValidator.calculateCheckDigit("063633910");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCheckDigitOfNullCode() {
+    LegalEntityCodeValidator.calculateCheckDigit(null);
+  }
+
+}
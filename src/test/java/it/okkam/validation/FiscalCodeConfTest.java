@@ -0,0 +1,205 @@
+package it.okkam.validation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FiscalCodeConfTest {
+
+  private static final String CODICE_ISTAT_COMUNI_CSV = "codice-istat-comuni.csv";
+  private static final int THREADS = 16;
+  private static final int RECORDS_PER_THREAD = 5000;
+  private static final int PUBLICATION_ROUNDS = 50;
+  private static String codiciIstatStr;
+  private static FiscalCodeConf conf;
+  private int maxComuneNameLength = 25;
+
+  private String readLocalFile(String filePath) throws IOException {
+    ClassLoader classLoader = this.getClass().getClassLoader();
+    return IOUtils.toString(classLoader.getResource(filePath), Charset.forName("UTF-8"));
+  }
+
+  /**
+   * Init method.
+   *
+   * @throws IOException
+   */
+  @Before
+  public void init() throws IOException {
+    codiciIstatStr = readLocalFile(CODICE_ISTAT_COMUNI_CSV);
+    conf = FiscalCodeConf.builder().comuni(codiciIstatStr, maxComuneNameLength).build();
+  }
+
+  private static byte[] serialize(FiscalCodeConf conf) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(conf);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static FiscalCodeConf deserialize(byte[] bytes)
+      throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return (FiscalCodeConf) in.readObject();
+    }
+  }
+
+  private static void assertImmutable(FiscalCodeConf conf) {
+    try {
+      conf.getComuniMap().put("ATLANTIDE", Arrays.asList("Z999"));
+      Assert.fail("comuniMap must be immutable");
+    } catch (UnsupportedOperationException ex) {
+      // expected
+    }
+    try {
+      conf.getComuniMap().get("MILANO").add("Z999");
+      Assert.fail("comuniMap lists must be immutable");
+    } catch (UnsupportedOperationException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testBuilder() {
+    FiscalCodeConf expected = FiscalCodeValidator.getFiscalCodeConf(codiciIstatStr,
+        maxComuneNameLength, "M", 2, 4, 5, 7, 8, 10);
+    FiscalCodeConf built = FiscalCodeConf.builder().comuni(codiciIstatStr, maxComuneNameLength)
+        .year(2, 4).month(5, 7).day(8, 10).build();
+    Assert.assertEquals(expected.getComuniMap(), built.getComuniMap());
+    Assert.assertEquals("M", built.getMaleValue());
+    Assert.assertEquals(5, built.getMonthStart());
+    String[] codes = FiscalCodeValidator.calcoloCodiceFiscale(built, "FO", "DARIO",
+        "1926-03-24T00:00:00", "SANGIANO", "M");
+    Assert.assertTrue(ArrayUtils.contains(codes, "FOXDRA26C24H872Y"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBuilderWithoutComuni() {
+    FiscalCodeConf.builder().build();
+  }
+
+  @Test
+  public void testImmutability() throws Exception {
+    assertImmutable(conf);
+    assertImmutable(deserialize(serialize(conf)));
+
+    // later changes to the source map are not visible
+    Map<String, List<String>> comuniMap = new HashMap<>();
+    comuniMap.put("MILANO", new ArrayList<>(Arrays.asList("F205")));
+    FiscalCodeConf copy = FiscalCodeConf.builder().comuniMap(comuniMap).build();
+    comuniMap.get("MILANO").add("Z999");
+    comuniMap.put("ATLANTIDE", Arrays.asList("Z999"));
+    Assert.assertEquals(Arrays.asList("F205"), copy.getComuniMap().get("MILANO"));
+    Assert.assertNull(copy.getComuniMap().get("ATLANTIDE"));
+  }
+
+  /**
+   * Holder of a FiscalCodeConf published without synchronization.
+   */
+  private static final class Holder {
+    private FiscalCodeConf conf;
+  }
+
+  @Test
+  public void testRacyPublication() throws Exception {
+    final Map<String, List<String>> comuniMap =
+        FiscalCodeValidator.getComuniMap(codiciIstatStr, maxComuneNameLength);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (int round = 0; round < PUBLICATION_ROUNDS; round++) {
+        final Holder holder = new Holder();
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        // the conf is built while the readers are already spinning on the plain field
+        futures.add(executor.submit(() -> {
+          barrier.await();
+          holder.conf = FiscalCodeConf.builder().comuniMap(comuniMap).maleValue("1").build();
+          return null;
+        }));
+        for (int t = 1; t < THREADS; t++) {
+          futures.add(executor.submit(() -> {
+            barrier.await();
+            FiscalCodeConf published;
+            while ((published = holder.conf) == null) {
+              Thread.yield();
+            }
+            Assert.assertEquals("1", published.getMaleValue());
+            Assert.assertEquals(3, published.getMonthStart());
+            Assert.assertEquals(comuniMap.size(), published.getComuniMap().size());
+            Assert.assertEquals(comuniMap.get("MILANO"), published.getComuniMap().get("MILANO"));
+            String[] codes = FiscalCodeValidator.calcoloCodiceFiscale(published, "FO", "DARIO",
+                "24/03/1926", "SANGIANO", "1");
+            Assert.assertTrue(ArrayUtils.contains(codes, "FOXDRA26C24H872Y"));
+            return null;
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get(30, TimeUnit.SECONDS);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentGenerationAndSerialization() throws Exception {
+    final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final long seed = t;
+        final boolean serializing = t % 4 == 0;
+        futures.add(executor.submit(() -> {
+          SyntheticPersonGenerator generator =
+              new SyntheticPersonGenerator(conf, codiciIstatStr, maxComuneNameLength, 0, seed);
+          List<SyntheticPerson> persons = generator.next(RECORDS_PER_THREAD);
+          barrier.await();
+          int checked = 0;
+          for (SyntheticPerson synthetic : persons) {
+            // some threads use a copy serialized while the others are generating codes
+            FiscalCodeConf threadConf = serializing && checked % 500 == 0
+                ? deserialize(serialize(conf)) : conf;
+            FiscalCodePerson person = synthetic.getPerson();
+            String[] codes = FiscalCodeValidator.calcoloCodiceFiscale(threadConf,
+                person.getSurname(), person.getName(), person.getBirthDate(),
+                person.getTownOfBirth(), person.getGender());
+            Assert.assertTrue(synthetic.getExpectedCode(),
+                ArrayUtils.contains(codes, synthetic.getExpectedCode()));
+            checked++;
+          }
+          return checked;
+        }));
+      }
+      int checked = 0;
+      for (Future<Integer> future : futures) {
+        checked += future.get();
+      }
+      Assert.assertEquals(THREADS * RECORDS_PER_THREAD, checked);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
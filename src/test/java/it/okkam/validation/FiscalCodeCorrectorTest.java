@@ -0,0 +1,97 @@
+package it.okkam.validation;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FiscalCodeCorrectorTest {
+
+  private static final String CODICE_ISTAT_COMUNI_CSV = "codice-istat-comuni.csv";
+  private static final String DARIO_FO = "FOXDRA26C24H872Y";
+  private static FiscalCodeCorrector corrector;
+  private int maxComuneNameLength = 25;
+
+  private String readLocalFile(String filePath) throws IOException {
+    ClassLoader classLoader = this.getClass().getClassLoader();
+    return IOUtils.toString(classLoader.getResource(filePath), Charset.forName("UTF-8"));
+  }
+
+  /**
+   * Init method.
+   *
+   * @throws IOException
+   */
+  @Before
+  public void init() throws IOException {
+    String codiciIstatStr = readLocalFile(CODICE_ISTAT_COMUNI_CSV);
+    FiscalCodeConf conf = FiscalCodeValidator.getFiscalCodeConf(codiciIstatStr,
+        maxComuneNameLength, "M", 8, 10, 3, 5, 0, 2);
+    corrector = new FiscalCodeCorrector(conf);
+  }
+
+  private static boolean containsCode(List<FiscalCodeCorrection> corrections, String code) {
+    for (FiscalCodeCorrection correction : corrections) {
+      if (correction.getCode().equals(code)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testValidCode() {
+    List<FiscalCodeCorrection> corrections = corrector.correct(DARIO_FO);
+    Assert.assertEquals(1, corrections.size());
+    Assert.assertEquals(FiscalCodeCorrection.Type.NONE, corrections.get(0).getType());
+    // omocodic codes are valid as well
+    corrections = corrector.correct("FOXDRA26C24H87NN");
+    Assert.assertEquals(FiscalCodeCorrection.Type.NONE, corrections.get(0).getType());
+  }
+
+  @Test
+  public void testOcrConfusion() {
+    List<FiscalCodeCorrection> corrections = corrector.correct("FOXDRA2GC24H872Y");
+    Assert.assertEquals(DARIO_FO, corrections.get(0).getCode());
+    Assert.assertEquals(FiscalCodeCorrection.Type.SUBSTITUTION, corrections.get(0).getType());
+    Assert.assertEquals(7, corrections.get(0).getPosition());
+
+    corrections = corrector.correct("rssmra8oa01f855q");
+    Assert.assertEquals("RSSMRA80A01F855Q", corrections.get(0).getCode());
+  }
+
+  @Test
+  public void testTransposition() {
+    List<FiscalCodeCorrection> corrections = corrector.correct("FOXDRA62C24H872Y");
+    Assert.assertTrue(containsCode(corrections, DARIO_FO));
+    corrections = corrector.correct("FOXDRA26C24H87Y2");
+    Assert.assertEquals(DARIO_FO, corrections.get(0).getCode());
+    Assert.assertEquals(FiscalCodeCorrection.Type.TRANSPOSITION, corrections.get(0).getType());
+  }
+
+  @Test
+  public void testWrongControlChar() {
+    List<FiscalCodeCorrection> corrections = corrector.correct("FOXDRA26C24H872Z");
+    Assert.assertTrue(containsCode(corrections, DARIO_FO));
+  }
+
+  @Test
+  public void testCandidatesAreValid() {
+    for (FiscalCodeCorrection correction : corrector.correct("FOXDRA26C24H873Y")) {
+      Assert.assertEquals(FiscalCodeCorrection.Type.NONE,
+          corrector.correct(correction.getCode()).get(0).getType());
+    }
+  }
+
+  @Test
+  public void testNotCorrectable() {
+    Assert.assertTrue(corrector.correct(null).isEmpty());
+    Assert.assertTrue(corrector.correct("FOXDRA26C24").isEmpty());
+    Assert.assertTrue(corrector.correct("FOXDRA26C24H8--Y").isEmpty());
+  }
+
+}
@@ -0,0 +1,152 @@
+package it.okkam.validation;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FiscalCodeJoinerTest {
+
+  private static final String CODICE_ISTAT_COMUNI_CSV = "codice-istat-comuni.csv";
+  private static FiscalCodeConf conf;
+  private int maxComuneNameLength = 25;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String readLocalFile(String filePath) throws IOException {
+    ClassLoader classLoader = this.getClass().getClassLoader();
+    return IOUtils.toString(classLoader.getResource(filePath), Charset.forName("UTF-8"));
+  }
+
+  /**
+   * Init method.
+   *
+   * @throws IOException
+   */
+  @Before
+  public void init() throws IOException {
+    String codiciIstatStr = readLocalFile(CODICE_ISTAT_COMUNI_CSV);
+    conf = FiscalCodeValidator.getFiscalCodeConf(codiciIstatStr, maxComuneNameLength, "M", 8, 10,
+        3, 5, 0, 2);
+  }
+
+  private static List<FiscalCodePerson> getPersons() {
+    return Arrays.asList(//
+        new FiscalCodePerson("fo", "FO", "DARIO", "24/03/1926", "SANGIANO", "M"),
+        new FiscalCodePerson("rossi", "ROSSI", "MARIO", "01/01/1980", "NOCI", "M"),
+        new FiscalCodePerson("bianchi", "BIANCHI", "LUCA", "01/01/1980", "ROMA", "M"),
+        new FiscalCodePerson("baddate", "BIANCHI", "LUCA", "1980", "ROMA", "M"));
+  }
+
+  private static List<String> getCodes() {
+    return Arrays.asList(//
+        "foxdra26c24h872y", // lower case
+        "RSSMRA80A01F855Q", "RSSMRA80A01F915O", // NOCI has 2 codes
+        "BNCLCU80A01H501A", // wrong control char
+        "VRDGPP13R10B");
+  }
+
+  private Map<String, FiscalCodeMatch> join(FiscalCodeJoiner joiner, List<FiscalCodePerson> persons,
+      List<String> codes) throws IOException {
+    Map<String, FiscalCodeMatch> ret = new HashMap<>();
+    joiner.join(persons.iterator(), codes.iterator(), match -> ret.put(
+        match.getPerson() == null ? match.getCodes().get(0) : match.getPerson().getId(), match));
+    return ret;
+  }
+
+  private static void assertMatch(Map<String, FiscalCodeMatch> results,
+      FiscalCodeMatch.Type expectedType, String key, String... expectedCodes) {
+    FiscalCodeMatch match = results.get(key);
+    Assert.assertNotNull(match);
+    Assert.assertEquals(expectedType, match.getType());
+    List<String> codes = new ArrayList<>(match.getCodes());
+    codes.sort(null);
+    Assert.assertEquals(Arrays.asList(expectedCodes), codes);
+  }
+
+  private static void assertJoinResults(Map<String, FiscalCodeMatch> results) {
+    Assert.assertEquals(6, results.size());
+    assertMatch(results, FiscalCodeMatch.Type.MATCHED, "fo", "FOXDRA26C24H872Y");
+    assertMatch(results, FiscalCodeMatch.Type.AMBIGUOUS, "rossi", "RSSMRA80A01F855Q",
+        "RSSMRA80A01F915O");
+    assertMatch(results, FiscalCodeMatch.Type.UNMATCHED_PERSON, "bianchi");
+    assertMatch(results, FiscalCodeMatch.Type.UNMATCHED_PERSON, "baddate");
+    assertMatch(results, FiscalCodeMatch.Type.UNMATCHED_CODE, "BNCLCU80A01H501A",
+        "BNCLCU80A01H501A");
+    assertMatch(results, FiscalCodeMatch.Type.UNMATCHED_CODE, "VRDGPP13R10B", "VRDGPP13R10B");
+  }
+
+  @Test
+  public void testInMemoryJoin() throws IOException {
+    Map<String, FiscalCodeMatch> results =
+        join(new FiscalCodeJoiner(conf), getPersons(), getCodes());
+    assertJoinResults(results);
+  }
+
+  @Test
+  public void testSpillingJoin() throws IOException {
+    FiscalCodeJoiner joiner = new FiscalCodeJoiner(conf, 1, 3, tempFolder.getRoot());
+    Map<String, FiscalCodeMatch> results = join(joiner, getPersons(), getCodes());
+    assertJoinResults(results);
+    // spill files must be removed
+    Assert.assertEquals(0, tempFolder.getRoot().list().length);
+  }
+
+  @Test
+  public void testOmocodia() throws IOException {
+    Map<String, FiscalCodeMatch> results = join(new FiscalCodeJoiner(conf), getPersons(),
+        Arrays.asList("FOXDRA26C24H87NN"));
+    assertMatch(results, FiscalCodeMatch.Type.MATCHED, "fo", "FOXDRA26C24H87NN");
+  }
+
+  @Test
+  public void testDuplicatedCodes() throws IOException {
+    List<String> codes = Arrays.asList("FOXDRA26C24H872Y", " foxdra26c24h872y",
+        "FOXDRA26C24H872Y", "VRDGPP13R10B", "VRDGPP13R10B");
+    for (FiscalCodeJoiner joiner : Arrays.asList(new FiscalCodeJoiner(conf),
+        new FiscalCodeJoiner(conf, 1, 3, tempFolder.getRoot()))) {
+      List<FiscalCodeMatch> results = new ArrayList<>();
+      joiner.join(getPersons().subList(0, 1).iterator(), codes.iterator(), results::add);
+      // the same code is matched once, VRDGPP13R10B has no prefix so it is not deduplicated
+      Assert.assertEquals(3, results.size());
+      assertMatch(join(joiner, getPersons(), codes), FiscalCodeMatch.Type.MATCHED, "fo",
+          "FOXDRA26C24H872Y");
+    }
+  }
+
+  @Test
+  public void testSharedCode() throws IOException {
+    List<FiscalCodePerson> persons = Arrays.asList(//
+        new FiscalCodePerson("fo", "FO", "DARIO", "24/03/1926", "SANGIANO", "M"),
+        new FiscalCodePerson("fo2", "FO", "DARIO", "24/03/1926", "SANGIANO", "M"));
+    List<String> codes = Arrays.asList("FOXDRA26C24H872Y");
+    for (FiscalCodeJoiner joiner : Arrays.asList(new FiscalCodeJoiner(conf),
+        new FiscalCodeJoiner(conf, 1, 3, tempFolder.getRoot()))) {
+      Map<String, FiscalCodeMatch> results = join(joiner, persons, codes);
+      Assert.assertEquals(3, results.size());
+      assertMatch(results, FiscalCodeMatch.Type.MATCHED, "fo", "FOXDRA26C24H872Y");
+      assertMatch(results, FiscalCodeMatch.Type.MATCHED, "fo2", "FOXDRA26C24H872Y");
+      assertMatch(results, FiscalCodeMatch.Type.SHARED_CODE, "FOXDRA26C24H872Y",
+          "FOXDRA26C24H872Y");
+    }
+  }
+
+  @Test
+  public void testPrefix() {
+    Assert.assertEquals("FOXDRA26C24",
+        FiscalCodeValidator.calculatePrefix(conf, "FO", "DARIO", "24/03/1926", "M"));
+    Assert.assertNull(FiscalCodeValidator.calculatePrefix(conf, "FO", "DARIO", null, "M"));
+  }
+
+}
@@ -0,0 +1,28 @@
+package it.okkam.validation;
+
+import lombok.Getter;
+
+/**
+ * A person produced by the {@link SyntheticPersonGenerator}, with its known fiscal code.
+ */
+@Getter
+public class SyntheticPerson {
+
+  private final FiscalCodePerson person;
+  private final String expectedCode;
+  private final boolean dirty;
+
+  /**
+   * Synthetic person.
+   *
+   * @param person the (possibly noisy) person credentials
+   * @param expectedCode the fiscal code of the clean person credentials
+   * @param dirty true if the credentials contain an error, i.e. the expected code should not be
+   *        generated from them
+   */
+  public SyntheticPerson(FiscalCodePerson person, String expectedCode, boolean dirty) {
+    this.person = person;
+    this.expectedCode = expectedCode;
+    this.dirty = dirty;
+  }
+}
@@ -0,0 +1,229 @@
+package it.okkam.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Seeded generator of realistic persons with known fiscal codes, used to benchmark the validator.
+ *
+ * <p>Surnames, names and towns are drawn from Zipf distributions (towns from the ISTAT table, so
+ * comuni with multiple codes are included), and the credentials are perturbed with the noise
+ * found in real data (case, spaces, punctuation, accents written as apostrophes, truncated town
+ * names) which still yields the expected code. A configurable fraction of the records is dirty,
+ * i.e. contains an error that makes the expected code unreachable. Birth dates are formatted as
+ * dd/MM/yyyy, see {@link #getFiscalCodeConf(String, int)}.
+ */
+public class SyntheticPersonGenerator {
+
+  // most frequent italian surnames and names, in decreasing order of frequency
+  private static final String[] SURNAMES = new String[] { //
+      "ROSSI", "RUSSO", "FERRARI", "ESPOSITO", "BIANCHI", "ROMANO", "COLOMBO", "RICCI", "MARINO",
+      "GRECO", "BRUNO", "GALLO", "CONTI", "DE LUCA", "MANCINI", "COSTA", "GIORDANO", "RIZZO",
+      "LOMBARDI", "MORETTI", "BARBIERI", "FONTANA", "SANTORO", "MARIANI", "RINALDI", "CARUSO",
+      "FERRARA", "GALLI", "MARTINI", "LEONE", "LONGO", "GENTILE", "MARTINELLI", "VITALE",
+      "LOMBARDO", "SERRA", "COPPOLA", "DE SANTIS", "D'ANGELO", "MARCHETTI", "PARISI", "VILLA",
+      "CONTE", "FERRARO", "FERRI", "FABBRI", "BIANCO", "MARCHI", "GRASSO", "VALENTINI", "D'AMICO",
+      "DELL'ORTO", "NICOLÒ", "FO", "LI", "RE" };
+
+  private static final String[] MALE_NAMES = new String[] { //
+      "GIUSEPPE", "GIOVANNI", "ANTONIO", "MARIO", "LUIGI", "FRANCESCO", "ANGELO", "VINCENZO",
+      "PIETRO", "SALVATORE", "CARLO", "FRANCO", "DOMENICO", "BRUNO", "PAOLO", "MICHELE",
+      "GIORGIO", "ALESSANDRO", "ANDREA", "LORENZO", "MATTEO", "MARCO", "LUCA", "STEFANO",
+      "ROBERTO", "GABRIELE", "LEONARDO", "RICCARDO", "DAVIDE", "TOMMASO", "GIAN LUCA",
+      "NICCOLÒ", "UGO", "LEO", "ELIA" };
+
+  private static final String[] FEMALE_NAMES = new String[] { //
+      "MARIA", "ANNA", "GIUSEPPINA", "ROSA", "ANGELA", "GIOVANNA", "TERESA", "LUCIA", "CARMELA",
+      "CATERINA", "FRANCESCA", "CHIARA", "SARA", "MARTINA", "GIULIA", "SOFIA", "AURORA", "ALICE",
+      "GINEVRA", "EMMA", "GIORGIA", "ELENA", "ILARIA", "BEATRICE", "NOEMI", "MARIA GRAZIA",
+      "EVA", "ADA", "ZOE" };
+
+  private static final String[] ACCENTED_LETTERS = new String[] { "À", "È", "É", "Ì", "Ò", "Ù" };
+  private static final String[] ACCENTED_LETTERS_REPLACEMENT =
+      new String[] { "A'", "E'", "E'", "I'", "O'", "U'" };
+  private static final Pattern BELFIORE_CODE = Pattern.compile("[A-Z][0-9]{3}");
+  private static final double NOISE_RATE = 0.2;
+
+  private final FiscalCodeConf conf;
+  private final int maxComuneNameLength;
+  private final double errorRate;
+  private final Random random;
+  private final String[] towns;
+  private final String[] townCodes;
+  private final double[] surnameWeights;
+  private final double[] maleNameWeights;
+  private final double[] femaleNameWeights;
+  private final double[] townWeights;
+
+  /**
+   * Generator.
+   *
+   * @param conf the FiscalCodeConf (see {@link #getFiscalCodeConf(String, int)})
+   * @param codiciIstatStr the string content of the TSV containing CODICE-ISTAT => TOWN mappings
+   * @param maxComuneNameLength the max length of the name of a comune used by the conf
+   * @param errorRate the fraction of dirty records (between 0 and 1)
+   * @param seed the random seed
+   */
+  public SyntheticPersonGenerator(FiscalCodeConf conf, String codiciIstatStr,
+      int maxComuneNameLength, double errorRate, long seed) {
+    this.conf = conf;
+    this.maxComuneNameLength = maxComuneNameLength;
+    this.errorRate = errorRate;
+    this.random = new Random(seed);
+
+    final Map<String, String> istatRows = new LinkedHashMap<>();
+    try (Scanner scanner = new Scanner(codiciIstatStr)) {
+      while (scanner.hasNextLine()) {
+        final String[] fields = scanner.nextLine().split("\t");
+        if (fields.length == 2 && BELFIORE_CODE.matcher(fields[0]).matches()) {
+          istatRows.put(fields[0] + "\t" + fields[1].trim().toUpperCase(), fields[0]);
+        }
+      }
+    }
+    // towns frequency does not depend on the order of the ISTAT table
+    final List<String> rows = new ArrayList<>(istatRows.keySet());
+    Collections.shuffle(rows, new Random(seed));
+    this.towns = new String[rows.size()];
+    this.townCodes = new String[rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      final String row = rows.get(i);
+      townCodes[i] = row.substring(0, row.indexOf('\t'));
+      towns[i] = row.substring(row.indexOf('\t') + 1);
+    }
+    this.surnameWeights = zipfCumulativeWeights(SURNAMES.length, 1.0);
+    this.maleNameWeights = zipfCumulativeWeights(MALE_NAMES.length, 1.0);
+    this.femaleNameWeights = zipfCumulativeWeights(FEMALE_NAMES.length, 1.0);
+    this.townWeights = zipfCumulativeWeights(towns.length, 0.8);
+  }
+
+  /**
+   * Get the FiscalCodeConf matching the format of the generated birth dates (dd/MM/yyyy).
+   *
+   * @param codiciIstatStr the string content of the TSV containing CODICE-ISTAT => TOWN mappings
+   * @param maxComuneNameLength the max length of the name of a comune
+   * @return the FiscalCodeConf
+   */
+  public static FiscalCodeConf getFiscalCodeConf(String codiciIstatStr, int maxComuneNameLength) {
+    return FiscalCodeValidator.getFiscalCodeConf(codiciIstatStr, maxComuneNameLength, "M", 8, 10,
+        3, 5, 0, 2);
+  }
+
+  /**
+   * Generate the next person.
+   *
+   * @return the generated person
+   */
+  public SyntheticPerson next() {
+    final boolean male = random.nextBoolean();
+    String surname = SURNAMES[sample(surnameWeights)];
+    String name = male ? MALE_NAMES[sample(maleNameWeights)]
+        : FEMALE_NAMES[sample(femaleNameWeights)];
+    final int townIdx = sample(townWeights);
+    String town = towns[townIdx];
+    int day = 1 + random.nextInt(28);
+    final int month = 1 + random.nextInt(12);
+    final int year = 1920 + random.nextInt(90);
+    String gender = male ? "M" : "F";
+
+    final String prefix = FiscalCodeValidator.calculatePrefix(conf, surname, name,
+        formatDate(day, month, year), gender);
+    final String code = prefix + townCodes[townIdx];
+    final String expectedCode = code + FiscalCodeValidator.calculateControlChar(code);
+
+    // noise that does not change the fiscal code
+    surname = addNoise(surname);
+    name = addNoise(name);
+    if (random.nextDouble() < NOISE_RATE
+        && StringUtils.indexOfAny(town, ACCENTED_LETTERS) >= 0) {
+      town = StringUtils.replaceEach(town, ACCENTED_LETTERS, ACCENTED_LETTERS_REPLACEMENT);
+    }
+    if (maxComuneNameLength > 0 && town.length() > maxComuneNameLength
+        && random.nextDouble() < NOISE_RATE) {
+      town = town.substring(0, maxComuneNameLength).trim();
+    }
+    if (random.nextDouble() < NOISE_RATE) {
+      town = town.toLowerCase();
+    }
+
+    final boolean dirty = random.nextDouble() < errorRate;
+    if (dirty) {
+      switch (random.nextInt(4)) {
+        case 0:
+          day = day == 28 ? 1 : day + 1;
+          break;
+        case 1:
+          gender = male ? "F" : "M";
+          break;
+        case 2:
+          // misspelled town, most likely unknown
+          final int pos = random.nextInt(town.length());
+          town = town.substring(0, pos) + town.substring(pos + 1) + "X";
+          break;
+        default:
+          surname = null;
+          break;
+      }
+    }
+    final FiscalCodePerson person =
+        new FiscalCodePerson(null, surname, name, formatDate(day, month, year), town, gender);
+    return new SyntheticPerson(person, expectedCode, dirty);
+  }
+
+  /**
+   * Generate the next persons.
+   *
+   * @param count the number of persons to generate
+   * @return the generated persons
+   */
+  public List<SyntheticPerson> next(int count) {
+    final List<SyntheticPerson> ret = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ret.add(next());
+    }
+    return ret;
+  }
+
+  private String addNoise(String value) {
+    if (random.nextDouble() >= NOISE_RATE) {
+      return value;
+    }
+    switch (random.nextInt(4)) {
+      case 0:
+        return value.toLowerCase();
+      case 1:
+        return " " + value.replace(" ", "  ") + " ";
+      case 2:
+        return value.replace('\'', '`');
+      default:
+        return value.replace(' ', '-');
+    }
+  }
+
+  private static String formatDate(int day, int month, int year) {
+    return (day < 10 ? "0" : "") + day + (month < 10 ? "/0" : "/") + month + "/" + year;
+  }
+
+  private int sample(double[] cumulativeWeights) {
+    final double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+    final int idx = Arrays.binarySearch(cumulativeWeights, value);
+    return idx >= 0 ? idx : -idx - 1;
+  }
+
+  private static double[] zipfCumulativeWeights(int size, double exponent) {
+    final double[] ret = new double[size];
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += 1.0 / Math.pow(i + 1, exponent);
+      ret[i] = sum;
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,79 @@
+package it.okkam.validation;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyntheticPersonGeneratorTest {
+
+  private static final String CODICE_ISTAT_COMUNI_CSV = "codice-istat-comuni.csv";
+  private static final int RECORDS = 20000;
+  private static String codiciIstatStr;
+  private static FiscalCodeConf conf;
+  private int maxComuneNameLength = 25;
+
+  private String readLocalFile(String filePath) throws IOException {
+    ClassLoader classLoader = this.getClass().getClassLoader();
+    return IOUtils.toString(classLoader.getResource(filePath), Charset.forName("UTF-8"));
+  }
+
+  /**
+   * Init method.
+   *
+   * @throws IOException
+   */
+  @Before
+  public void init() throws IOException {
+    codiciIstatStr = readLocalFile(CODICE_ISTAT_COMUNI_CSV);
+    conf = SyntheticPersonGenerator.getFiscalCodeConf(codiciIstatStr, maxComuneNameLength);
+  }
+
+  private SyntheticPersonGenerator newGenerator(double errorRate, long seed) {
+    return new SyntheticPersonGenerator(conf, codiciIstatStr, maxComuneNameLength, errorRate,
+        seed);
+  }
+
+  @Test
+  public void testSameSeedSameRecords() {
+    SyntheticPersonGenerator generator1 = newGenerator(0.1, 7);
+    SyntheticPersonGenerator generator2 = newGenerator(0.1, 7);
+    for (int i = 0; i < 1000; i++) {
+      SyntheticPerson person1 = generator1.next();
+      SyntheticPerson person2 = generator2.next();
+      Assert.assertEquals(person1.getExpectedCode(), person2.getExpectedCode());
+      Assert.assertEquals(person1.getPerson().getTownOfBirth(),
+          person2.getPerson().getTownOfBirth());
+      Assert.assertEquals(person1.isDirty(), person2.isDirty());
+    }
+  }
+
+  @Test
+  public void testCleanRecordsHaveExpectedCode() {
+    SyntheticPersonGenerator generator = newGenerator(0, 42);
+    for (SyntheticPerson synthetic : generator.next(RECORDS)) {
+      FiscalCodePerson person = synthetic.getPerson();
+      String[] codes = FiscalCodeValidator.calcoloCodiceFiscale(conf, person.getSurname(),
+          person.getName(), person.getBirthDate(), person.getTownOfBirth(), person.getGender());
+      Assert.assertTrue(synthetic.getExpectedCode(),
+          ArrayUtils.contains(codes, synthetic.getExpectedCode()));
+    }
+  }
+
+  @Test
+  public void testErrorRate() {
+    SyntheticPersonGenerator generator = newGenerator(0.2, 42);
+    int dirty = 0;
+    for (SyntheticPerson synthetic : generator.next(RECORDS)) {
+      if (synthetic.isDirty()) {
+        dirty++;
+      }
+    }
+    Assert.assertEquals(0.2, (double) dirty / RECORDS, 0.02);
+  }
+
+}
@@ -0,0 +1,310 @@
+package it.okkam.validation;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * End-to-end throughput harness of {@link FiscalCodeValidator#calcoloCodiceFiscale}, fed by the
+ * {@link SyntheticPersonGenerator}. It prints a single JSON object with throughput, latency
+ * percentiles, GC and heap figures, so that runs can be compared by scripts.
+ *
+ * <p>Arguments are key=value pairs (defaults in brackets): records [1000000], threads [available
+ * processors], warmup [100000], errorRate [0.05], seed [42], maxComuneNameLength [25], istat
+ * [codice-istat-comuni.csv, loaded from the classpath], out [stdout]. E.g. after
+ * <code>mvn test-compile</code>:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; \
+ *   it.okkam.validation.ThroughputHarness records=2000000 threads=8 errorRate=0.1
+ * </pre>
+ *
+ * <p>The persons of every thread are generated before the measured section (generationMs reports
+ * the time spent by the generators). The threads start the measured section together on a
+ * barrier, so elapsedMs, GC and heap peak figures only cover the calcoloCodiceFiscale loops;
+ * heapBaselineMb is the heap used by the generated persons when the measure starts.
+ * recordsPerSec is computed on the time spent by the threads in calcoloCodiceFiscale.
+ */
+public class ThroughputHarness {
+
+  private static final String DEFAULT_ISTAT = "codice-istat-comuni.csv";
+
+  /**
+   * Run the harness.
+   *
+   * @param args the key=value arguments
+   * @throws Exception if the harness fails
+   */
+  public static void main(String[] args) throws Exception {
+    final Map<String, String> params = new HashMap<>();
+    for (String arg : args) {
+      final int sep = arg.indexOf('=');
+      if (sep <= 0) {
+        throw new IllegalArgumentException("Argument " + arg + " is not in the key=value form");
+      }
+      params.put(arg.substring(0, sep), arg.substring(sep + 1));
+    }
+    final int records = Integer.parseInt(params.getOrDefault("records", "1000000"));
+    final int threads = Integer.parseInt(params.getOrDefault("threads",
+        String.valueOf(Runtime.getRuntime().availableProcessors())));
+    final int warmup = Integer.parseInt(params.getOrDefault("warmup", "100000"));
+    final double errorRate = Double.parseDouble(params.getOrDefault("errorRate", "0.05"));
+    final long seed = Long.parseLong(params.getOrDefault("seed", "42"));
+    final int maxComuneNameLength =
+        Integer.parseInt(params.getOrDefault("maxComuneNameLength", "25"));
+    final String istat = params.getOrDefault("istat", DEFAULT_ISTAT);
+
+    final String codiciIstatStr = readResource(istat);
+    final FiscalCodeConf conf =
+        SyntheticPersonGenerator.getFiscalCodeConf(codiciIstatStr, maxComuneNameLength);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      measure(executor, conf, generate(executor, conf, codiciIstatStr, maxComuneNameLength,
+          warmup, threads, errorRate, seed - 1));
+
+      final long generationStart = System.nanoTime();
+      final List<List<SyntheticPerson>> persons = generate(executor, conf, codiciIstatStr,
+          maxComuneNameLength, records, threads, errorRate, seed);
+      final long generation = System.nanoTime() - generationStart;
+
+      System.gc();
+      final long baselineHeap =
+          ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          pool.resetPeakUsage();
+        }
+      }
+      final Measure measure = measure(executor, conf, persons);
+
+      long peakHeap = 0;
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          peakHeap += pool.getPeakUsage().getUsed();
+        }
+      }
+      final long usedHeap =
+          ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+      final Stats total = Stats.merge(measure.stats);
+      final long[] latencies = total.latencies;
+      Arrays.sort(latencies);
+      final long busyNanos = total.busyNanos / threads;
+
+      final StringBuilder json = new StringBuilder("{");
+      appendJson(json, "records", total.count);
+      appendJson(json, "threads", threads);
+      appendJson(json, "seed", seed);
+      appendJson(json, "errorRate", errorRate);
+      appendJson(json, "generationMs", generation / 1_000_000);
+      appendJson(json, "elapsedMs", measure.elapsed / 1_000_000);
+      appendJson(json, "recordsPerSec", total.count * 1e9 / busyNanos);
+      appendJson(json, "wallRecordsPerSec", total.count * 1e9 / measure.elapsed);
+      appendJson(json, "latencyP50Ns", percentile(latencies, 0.50));
+      appendJson(json, "latencyP90Ns", percentile(latencies, 0.90));
+      appendJson(json, "latencyP99Ns", percentile(latencies, 0.99));
+      appendJson(json, "latencyMaxNs", latencies[latencies.length - 1]);
+      appendJson(json, "gcCount", measure.gcCount);
+      appendJson(json, "gcTimeMs", measure.gcTime);
+      appendJson(json, "heapBaselineMb", baselineHeap / (1024 * 1024));
+      appendJson(json, "heapUsedMb", usedHeap / (1024 * 1024));
+      appendJson(json, "heapPeakMb", peakHeap / (1024 * 1024));
+      appendJson(json, "found", total.found);
+      appendJson(json, "notFound", total.notFound);
+      appendJson(json, "nullResults", total.nullResults);
+      appendJson(json, "exceptions", total.exceptions);
+      appendJson(json, "cleanNotFound", total.cleanNotFound);
+      json.setLength(json.length() - 1);
+      json.append('}');
+
+      final String out = params.get("out");
+      if (out == null) {
+        System.out.println(json);
+      } else {
+        try (PrintStream ps = new PrintStream(out, StandardCharsets.UTF_8.name())) {
+          ps.println(json);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<List<SyntheticPerson>> generate(ExecutorService executor,
+      FiscalCodeConf conf, String codiciIstatStr, int maxComuneNameLength, int records,
+      int threads, double errorRate, long seed) throws Exception {
+    final List<Future<List<SyntheticPerson>>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int threadRecords = records / threads + (t < records % threads ? 1 : 0);
+      final long threadSeed = seed * 31 + t;
+      futures.add(executor.submit(() -> new SyntheticPersonGenerator(conf, codiciIstatStr,
+          maxComuneNameLength, errorRate, threadSeed).next(threadRecords)));
+    }
+    final List<List<SyntheticPerson>> ret = new ArrayList<>();
+    for (Future<List<SyntheticPerson>> future : futures) {
+      ret.add(future.get());
+    }
+    return ret;
+  }
+
+  private static Measure measure(ExecutorService executor, FiscalCodeConf conf,
+      List<List<SyntheticPerson>> persons) throws Exception {
+    // snapshot taken by the last thread reaching the barrier, right before all of them start
+    final long[] startSnapshot = new long[3];
+    final CyclicBarrier barrier = new CyclicBarrier(persons.size(), () -> {
+      startSnapshot[0] = getGcCount();
+      startSnapshot[1] = getGcTime();
+      startSnapshot[2] = System.nanoTime();
+    });
+    final List<Future<Stats>> futures = new ArrayList<>();
+    for (List<SyntheticPerson> threadPersons : persons) {
+      futures.add(executor.submit(() -> {
+        final Stats stats = new Stats(threadPersons.size());
+        barrier.await();
+        for (SyntheticPerson person : threadPersons) {
+          stats.add(conf, person);
+        }
+        return stats;
+      }));
+    }
+    final List<Stats> stats = new ArrayList<>();
+    for (Future<Stats> future : futures) {
+      stats.add(future.get());
+    }
+    final long end = System.nanoTime();
+    return new Measure(stats, end - startSnapshot[2], getGcCount() - startSnapshot[0],
+        getGcTime() - startSnapshot[1]);
+  }
+
+  private static final class Measure {
+    private final List<Stats> stats;
+    private final long elapsed;
+    private final long gcCount;
+    private final long gcTime;
+
+    private Measure(List<Stats> stats, long elapsed, long gcCount, long gcTime) {
+      this.stats = stats;
+      this.elapsed = elapsed;
+      this.gcCount = gcCount;
+      this.gcTime = gcTime;
+    }
+  }
+
+  private static final class Stats {
+    private final long[] latencies;
+    private int count;
+    private long busyNanos;
+    private long found;
+    private long notFound;
+    private long nullResults;
+    private long exceptions;
+    private long cleanNotFound;
+
+    private Stats(int size) {
+      this.latencies = new long[size];
+    }
+
+    private void add(FiscalCodeConf conf, SyntheticPerson synthetic) {
+      final FiscalCodePerson person = synthetic.getPerson();
+      String[] codes = null;
+      boolean exception = false;
+      final long start = System.nanoTime();
+      try {
+        codes = FiscalCodeValidator.calcoloCodiceFiscale(conf, person.getSurname(),
+            person.getName(), person.getBirthDate(), person.getTownOfBirth(),
+            person.getGender());
+      } catch (IllegalArgumentException ex) {
+        exception = true;
+      }
+      final long latency = System.nanoTime() - start;
+      latencies[count++] = latency;
+      busyNanos += latency;
+
+      final boolean isFound =
+          codes != null && ArrayUtils.contains(codes, synthetic.getExpectedCode());
+      if (exception) {
+        exceptions++;
+      } else if (codes == null) {
+        nullResults++;
+      } else if (isFound) {
+        found++;
+      } else {
+        notFound++;
+      }
+      if (!isFound && !synthetic.isDirty()) {
+        cleanNotFound++;
+      }
+    }
+
+    private static Stats merge(List<Stats> stats) {
+      int size = 0;
+      for (Stats s : stats) {
+        size += s.count;
+      }
+      final Stats ret = new Stats(size);
+      for (Stats s : stats) {
+        System.arraycopy(s.latencies, 0, ret.latencies, ret.count, s.count);
+        ret.count += s.count;
+        ret.busyNanos += s.busyNanos;
+        ret.found += s.found;
+        ret.notFound += s.notFound;
+        ret.nullResults += s.nullResults;
+        ret.exceptions += s.exceptions;
+        ret.cleanNotFound += s.cleanNotFound;
+      }
+      return ret;
+    }
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+  }
+
+  private static long getGcCount() {
+    long ret = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      ret += Math.max(0, gc.getCollectionCount());
+    }
+    return ret;
+  }
+
+  private static long getGcTime() {
+    long ret = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      ret += Math.max(0, gc.getCollectionTime());
+    }
+    return ret;
+  }
+
+  private static void appendJson(StringBuilder json, String key, Object value) {
+    json.append('"').append(key).append("\":");
+    if (value instanceof Double) {
+      json.append(String.format(Locale.ROOT, "%.2f", (Double) value));
+    } else {
+      json.append(value);
+    }
+    json.append(',');
+  }
+
+  private static String readResource(String name) throws IOException {
+    return IOUtils.toString(ThroughputHarness.class.getClassLoader().getResource(name),
+        StandardCharsets.UTF_8);
+  }
+}